@@ -24,6 +24,11 @@ public class Application implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws IOException {
-        service.recreateIndex();
+        // "promote <index>" points the alias to an index built with alias.autoSwap=false
+        if (args.length == 2 && "promote".equals(args[0])) {
+            service.promoteIndex(args[1]);
+        } else {
+            service.recreateIndex();
+        }
     }
 }
\ No newline at end of file
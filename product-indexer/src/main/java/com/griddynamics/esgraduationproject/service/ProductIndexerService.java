@@ -3,5 +3,7 @@ package com.griddynamics.esgraduationproject.service;
 import java.io.IOException;
 
 public interface ProductIndexerService {
-    void recreateIndex() throws IOException;
+    String recreateIndex() throws IOException;
+
+    void promoteIndex(String indexName) throws IOException;
 }
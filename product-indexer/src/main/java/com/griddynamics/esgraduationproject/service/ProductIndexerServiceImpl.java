@@ -10,12 +10,14 @@ import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasA
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.client.indices.CreateIndexResponse;
 import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
@@ -24,16 +26,21 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
 @Component
 @Slf4j
 public class ProductIndexerServiceImpl implements ProductIndexerService {
 
+    private static final String INDEX_ALIAS = "product_index";
+
     private final RestHighLevelClient esClient;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -42,38 +49,101 @@ public class ProductIndexerServiceImpl implements ProductIndexerService {
     private Resource productMappingsFile;
     @Value("${com.griddynamics.es.graduation.project.files.settings:classpath:elastic/typeaheads/settings.json}")
     private Resource productSettingsFile;
+    @Value("${com.griddynamics.es.graduation.project.sharding.docsPerShard:100000}")
+    private int docsPerShard;
+    @Value("${com.griddynamics.es.graduation.project.sharding.maxShards:16}")
+    private int maxShards;
+    @Value("${com.griddynamics.es.graduation.project.routing.byBrand:false}")
+    private boolean routeByBrand;
+    @Value("${com.griddynamics.es.graduation.project.alias.autoSwap:true}")
+    private boolean autoSwapAlias;
 
     public ProductIndexerServiceImpl(RestHighLevelClient esClient) {
         this.esClient = esClient;
     }
 
-    public void recreateIndex() throws IOException {
-        String alias = "product_index";
-        String newIndexName = alias + "_" + System.currentTimeMillis();
+    @Override
+    public String recreateIndex() throws IOException {
+        String newIndexName = INDEX_ALIAS + "_" + System.currentTimeMillis();
 
-        // 1. Create new index with settings and mappings
+        // 1. Create new index with settings and mappings, sized for the catalog
+        List<Map<String, Object>> products = loadProducts();
         String settings = getStrFromResource(productSettingsFile);
         String mappings = getStrFromResource(productMappingsFile);
-        createIndex(newIndexName, settings, mappings);
+        if (routeByBrand) {
+            mappings = requireRouting(mappings);
+        }
+        createIndex(newIndexName, settings, mappings, shardCount(products.size(), docsPerShard, maxShards));
 
         // 2. Bulk index data
-        bulkIndex(newIndexName);
+        bulkIndex(newIndexName, products);
+
+        // 3. Update alias, or leave the new index as a candidate to be shadowed and promoted later
+        if (autoSwapAlias) {
+            promoteIndex(newIndexName);
+        } else {
+            log.info("Index {} is not live, shadow it with PUT /v1/shadow/candidate?index={} "
+                    + "and promote it with the 'promote {}' command.", newIndexName, newIndexName, newIndexName);
+        }
+        return newIndexName;
+    }
 
-        // 3. Update alias
-        updateAlias(alias, newIndexName);
+    @Override
+    public void promoteIndex(String indexName) throws IOException {
+        // 1. Update alias
+        updateAlias(INDEX_ALIAS, indexName);
+        log.info("Alias {} now points to index {}.", INDEX_ALIAS, indexName);
 
-        // 4. Clean up old indices
-        cleanOldIndices(alias, 3);
+        // 2. Clean up old indices
+        cleanOldIndices(INDEX_ALIAS, indexName, 3);
     }
 
-    private void bulkIndex(String indexName) throws IOException {
-        BulkRequest bulkRequest = new BulkRequest();
+    private List<Map<String, Object>> loadProducts() throws IOException {
         InputStream is = getClass().getClassLoader().getResourceAsStream("task_8_data.json");
-        List<Map<String, Object>> products = objectMapper.readValue(is, new TypeReference<List<Map<String, Object>>>() {});
+        return objectMapper.readValue(is, new TypeReference<List<Map<String, Object>>>() {});
+    }
+
+    static int shardCount(int catalogSize, int docsPerShard, int maxShards) {
+        int shards = (catalogSize + docsPerShard - 1) / docsPerShard;
+        return Math.max(1, Math.min(maxShards, shards));
+    }
+
+    // The search service only routes searches against indices whose mapping requires routing
+    private String requireRouting(String mappings) throws IOException {
+        Map<String, Object> mappingsMap = objectMapper.readValue(mappings, new TypeReference<Map<String, Object>>() {});
+        mappingsMap.put("_routing", Collections.singletonMap("required", true));
+        return objectMapper.writeValueAsString(mappingsMap);
+    }
+
+    private void bulkIndex(String indexName, List<Map<String, Object>> products) throws IOException {
+        BulkRequest bulkRequest = new BulkRequest();
         for (Map<String, Object> product : products) {
-            bulkRequest.add(new IndexRequest(indexName).source(product));
+            IndexRequest indexRequest = new IndexRequest(indexName).source(product);
+            if (routeByBrand) {
+                // Keep all products of a brand on one shard, so brand-scoped searches can target it
+                indexRequest.routing(routingKey(product));
+            }
+            bulkRequest.add(indexRequest);
+        }
+
+        BulkResponse bulkResponse = esClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        if (bulkResponse.hasFailures()) {
+            throw new RuntimeException("Bulk indexing into index " + indexName + " failed: "
+                    + bulkResponse.buildFailureMessage());
         }
-        esClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+    }
+
+    // Routing is required by the mapping, products without a brand are routed by id
+    static String routingKey(Map<String, Object> product) {
+        Object brand = product.get("brand");
+        if (brand != null && !isBlank(brand.toString())) {
+            return brand.toString();
+        }
+        Object id = product.get("id");
+        if (id == null || isBlank(id.toString())) {
+            throw new IllegalArgumentException("Can not route product without brand and id: " + product);
+        }
+        return id.toString();
     }
 
     private void updateAlias(String alias, String newIndex) throws IOException {
@@ -90,14 +160,18 @@ public class ProductIndexerServiceImpl implements ProductIndexerService {
         esClient.indices().updateAliases(request, RequestOptions.DEFAULT);
     }
 
-    private void cleanOldIndices(String alias, int maxIndices) throws IOException {
+    private void cleanOldIndices(String alias, String liveIndex, int maxIndices) throws IOException {
         GetIndexRequest request = new GetIndexRequest(alias + "_*");
         String[] allIndices = esClient.indices().get(request, RequestOptions.DEFAULT).getIndices();
         List<String> sorted = Arrays.stream(allIndices)
                 .sorted(Comparator.reverseOrder())
                 .collect(Collectors.toList());
 
-        List<String> toDelete = sorted.stream().skip(maxIndices).collect(Collectors.toList());
+        // Never delete the live index, it may be older than candidates built after it
+        List<String> toDelete = sorted.stream()
+                .skip(maxIndices)
+                .filter(index -> !index.equals(liveIndex))
+                .collect(Collectors.toList());
         if (!toDelete.isEmpty()) {
             DeleteIndexRequest deleteIndexRequest = new DeleteIndexRequest(toDelete.toArray(new String[0]));
             esClient.indices().delete(deleteIndexRequest, RequestOptions.DEFAULT);
@@ -115,9 +189,11 @@ public class ProductIndexerServiceImpl implements ProductIndexerService {
         }
     }
 
-    private void createIndex(String indexName, String settings, String mappings) {
+    private void createIndex(String indexName, String settings, String mappings, int numberOfShards) {
         CreateIndexRequest createIndexRequest = new CreateIndexRequest(indexName)
-                .settings(settings, XContentType.JSON)
+                .settings(Settings.builder()
+                        .loadFromSource(settings, XContentType.JSON)
+                        .put("index.number_of_shards", numberOfShards))
                 .mapping(mappings, XContentType.JSON);
 
         CreateIndexResponse createIndexResponse;
@@ -130,7 +206,7 @@ public class ProductIndexerServiceImpl implements ProductIndexerService {
         if (!createIndexResponse.isAcknowledged()) {
             throw new RuntimeException("Creating index not acknowledged for indexName: " + indexName);
         } else {
-            log.info("Index {} has been created.", indexName);
+            log.info("Index {} has been created with {} shard(s).", indexName, numberOfShards);
         }
     }
 }
@@ -0,0 +1,54 @@
+package com.griddynamics.esgraduationproject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProductIndexerServiceImplTest {
+
+    @Test
+    public void testShardCountAtLeastOne() {
+        assertEquals(1, ProductIndexerServiceImpl.shardCount(0, 100, 16));
+        assertEquals(1, ProductIndexerServiceImpl.shardCount(1, 100, 16));
+        assertEquals(1, ProductIndexerServiceImpl.shardCount(100, 100, 16));
+    }
+
+    @Test
+    public void testShardCountRoundsUp() {
+        assertEquals(2, ProductIndexerServiceImpl.shardCount(101, 100, 16));
+        assertEquals(5, ProductIndexerServiceImpl.shardCount(450, 100, 16));
+    }
+
+    @Test
+    public void testShardCountCappedByMaxShards() {
+        assertEquals(16, ProductIndexerServiceImpl.shardCount(1_000_000, 100, 16));
+    }
+
+    @Test
+    public void testRoutingKeyUsesBrand() {
+        assertEquals("Calvin Klein", ProductIndexerServiceImpl.routingKey(product("1", "Calvin Klein")));
+    }
+
+    @Test
+    public void testRoutingKeyFallsBackToIdForBlankBrand() {
+        assertEquals("1", ProductIndexerServiceImpl.routingKey(product("1", null)));
+        assertEquals("1", ProductIndexerServiceImpl.routingKey(product("1", "")));
+        assertEquals("1", ProductIndexerServiceImpl.routingKey(product("1", "  ")));
+    }
+
+    @Test
+    public void testRoutingKeyRequiresBrandOrId() {
+        assertThrows(IllegalArgumentException.class, () -> ProductIndexerServiceImpl.routingKey(product(null, "")));
+    }
+
+    private static Map<String, Object> product(String id, String brand) {
+        Map<String, Object> product = new HashMap<>();
+        product.put("id", id);
+        product.put("brand", brand);
+        return product;
+    }
+}
@@ -12,6 +12,7 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -22,20 +23,44 @@ public class ElasticsearchConfig {
     private String esHost;
     private String user;
     private String pass;
+    // Connection pool of the client serving live searches
+    private int maxConnections = 50;
+    // Connection pool of the client used for shadow and profiling requests
+    private int backgroundMaxConnections = 6;
 
     @Bean(name = "esClient")
+    @Primary
     public RestHighLevelClient getEsClient() {
+        return createClient(maxConnections);
+    }
+
+    // Separate pool, so background requests never hold connections needed by live searches
+    @Bean(name = "backgroundEsClient")
+    public RestHighLevelClient getBackgroundEsClient() {
+        return createClient(backgroundMaxConnections);
+    }
+
+    private RestHighLevelClient createClient(int poolSize) {
         RestClientBuilder restClientBuilder = RestClient.builder(HttpHost.create(esHost));
 
         // Use credentials if they exist (ES cluster should support authentication)
+        final CredentialsProvider credentialsProvider;
         if (isNotBlank(user) && isNotBlank(pass)) {
-            final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider = new BasicCredentialsProvider();
             credentialsProvider.setCredentials(AuthScope.ANY,
                 new UsernamePasswordCredentials(user, pass));
-            restClientBuilder.setHttpClientConfigCallback(
-                httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider));
+        } else {
+            credentialsProvider = null;
         }
 
+        restClientBuilder.setHttpClientConfigCallback(httpClientBuilder -> {
+            httpClientBuilder.setMaxConnPerRoute(poolSize).setMaxConnTotal(poolSize);
+            if (credentialsProvider != null) {
+                httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+            }
+            return httpClientBuilder;
+        });
+
         return new RestHighLevelClient(restClientBuilder);
     }
 }
@@ -0,0 +1,14 @@
+package com.griddynamics.esgraduationproject.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencyPercentiles {
+    private long p50;
+    private long p95;
+    private long p99;
+}
@@ -0,0 +1,16 @@
+package com.griddynamics.esgraduationproject.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueryProfileBreakdown {
+    private String shard;
+    private int depth;
+    private String queryType;
+    private String description;
+    private long timeNanos;
+}
@@ -0,0 +1,13 @@
+package com.griddynamics.esgraduationproject.model;
+
+public enum RequestPriority {
+    INTERACTIVE,
+    BATCH;
+
+    public static RequestPriority fromHeader(String value) {
+        if (value != null && value.trim().equalsIgnoreCase(BATCH.name())) {
+            return BATCH;
+        }
+        return INTERACTIVE;
+    }
+}
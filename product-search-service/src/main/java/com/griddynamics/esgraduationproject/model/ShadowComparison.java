@@ -0,0 +1,19 @@
+package com.griddynamics.esgraduationproject.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShadowComparison {
+    private long timestamp;
+    private long liveLatencyMillis;
+    private long candidateLatencyMillis;
+    private long liveTookMillis;
+    private long candidateTookMillis;
+    private long liveTotalHits;
+    private long candidateTotalHits;
+    private double topNOverlap;
+}
@@ -0,0 +1,34 @@
+package com.griddynamics.esgraduationproject.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShadowTrafficReport {
+    private String liveIndex;
+    private String candidateIndex;
+    private long comparedRequests;
+    private long failedRequests;
+    private long skippedRequests;
+    private double avgLiveLatencyMillis;
+    private double avgCandidateLatencyMillis;
+    private long maxLiveLatencyMillis;
+    private long maxCandidateLatencyMillis;
+    private LatencyPercentiles liveLatencyPercentiles;
+    private LatencyPercentiles candidateLatencyPercentiles;
+    private double avgLiveTookMillis;
+    private double avgCandidateTookMillis;
+    private LatencyPercentiles liveTookPercentiles;
+    private LatencyPercentiles candidateTookPercentiles;
+    private long hitCountMismatches;
+    private double avgTopNOverlap;
+    private int percentileSampleCount;
+    private List<ShadowComparison> recentComparisons;
+}
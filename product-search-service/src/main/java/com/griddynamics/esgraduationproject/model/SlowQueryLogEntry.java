@@ -0,0 +1,26 @@
+package com.griddynamics.esgraduationproject.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SlowQueryLogEntry {
+    private long timestamp;
+    private String textQuery;
+    private List<String> tokens;
+    private String query;
+    private long latencyMillis;
+    private Long tookMillis;
+    private boolean slow;
+    private String routing;
+    private String index;
+    private String error;
+    private List<QueryProfileBreakdown> profile;
+}
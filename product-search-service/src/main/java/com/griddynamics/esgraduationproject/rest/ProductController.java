@@ -2,10 +2,18 @@ package com.griddynamics.esgraduationproject.rest;
 
 import com.griddynamics.esgraduationproject.model.ProductSearchRequest;
 import com.griddynamics.esgraduationproject.model.ProductSearchResponse;
+import com.griddynamics.esgraduationproject.model.RequestPriority;
+import com.griddynamics.esgraduationproject.service.AdmissionControlService;
+import com.griddynamics.esgraduationproject.service.AdmissionRejectedException;
 import com.griddynamics.esgraduationproject.service.ProductSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -17,14 +25,42 @@ import java.util.Map;
 @RequestMapping("/v1/product")
 public class ProductController {
 
+    private static final String PRIORITY_HEADER = "X-Request-Priority";
+
     @Autowired
     private ProductSearchService searchService;
 
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
     @PostMapping
-    public ProductSearchResponse search(@RequestBody ProductSearchRequest req) throws IOException {
+    public ProductSearchResponse search(@RequestBody ProductSearchRequest req,
+                                        @RequestHeader(value = PRIORITY_HEADER, required = false) String priorityHeader)
+            throws IOException {
         if (req.getTextQuery() == null || req.getTextQuery().isBlank()) {
             return new ProductSearchResponse(0, List.of(), Map.of());
         }
-        return searchService.getServiceResponse(req);
+
+        RequestPriority priority = RequestPriority.fromHeader(priorityHeader);
+        if (!admissionControlService.tryAcquire(priority)) {
+            throw new AdmissionRejectedException(priority);
+        }
+
+        try {
+            return searchService.getServiceResponse(req);
+        } finally {
+            admissionControlService.release();
+        }
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Void> handleRejected(AdmissionRejectedException ex) {
+        // Batch callers are throttled, interactive callers only see the service as overloaded
+        HttpStatus status = ex.getPriority() == RequestPriority.BATCH
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
     }
 }
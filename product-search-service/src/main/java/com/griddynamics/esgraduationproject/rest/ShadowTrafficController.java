@@ -0,0 +1,35 @@
+package com.griddynamics.esgraduationproject.rest;
+
+import com.griddynamics.esgraduationproject.model.ShadowTrafficReport;
+import com.griddynamics.esgraduationproject.service.ShadowTrafficService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/shadow")
+public class ShadowTrafficController {
+
+    @Autowired
+    private ShadowTrafficService shadowTrafficService;
+
+    @GetMapping
+    public ShadowTrafficReport report() {
+        return shadowTrafficService.getReport();
+    }
+
+    @PutMapping("/candidate")
+    public ShadowTrafficReport setCandidate(@RequestParam("index") String index) {
+        shadowTrafficService.setCandidateIndex(index);
+        return shadowTrafficService.getReport();
+    }
+
+    @DeleteMapping
+    public void reset() {
+        shadowTrafficService.reset();
+    }
+}
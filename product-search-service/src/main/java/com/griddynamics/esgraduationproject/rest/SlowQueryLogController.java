@@ -0,0 +1,34 @@
+package com.griddynamics.esgraduationproject.rest;
+
+import com.griddynamics.esgraduationproject.model.SlowQueryLogEntry;
+import com.griddynamics.esgraduationproject.service.SlowQueryLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/slowlog")
+public class SlowQueryLogController {
+
+    @Autowired
+    private SlowQueryLogService slowQueryLogService;
+
+    @GetMapping
+    public List<SlowQueryLogEntry> slowEntries() {
+        return slowQueryLogService.getSlowEntries();
+    }
+
+    @GetMapping("/sampled")
+    public List<SlowQueryLogEntry> sampledEntries() {
+        return slowQueryLogService.getSampledEntries();
+    }
+
+    @DeleteMapping
+    public void clear() {
+        slowQueryLogService.clear();
+    }
+}
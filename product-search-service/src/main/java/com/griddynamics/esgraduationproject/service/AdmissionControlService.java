@@ -0,0 +1,11 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.RequestPriority;
+
+public interface AdmissionControlService {
+    boolean tryAcquire(RequestPriority priority);
+
+    void release();
+
+    void recordLatency(long esLatencyMillis, boolean failed);
+}
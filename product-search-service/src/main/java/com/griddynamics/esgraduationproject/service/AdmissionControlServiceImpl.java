@@ -0,0 +1,111 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.RequestPriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive concurrency limit for searches (AIMD): while ES search calls complete under the latency
+ * threshold and at least half of the limit is in use, each call adds 1/limit, so the limit grows
+ * by about one per window of limit calls. A slow or failed call multiplies the limit by the backoff
+ * ratio, at most once per window: calls that started before the last decrease were admitted under
+ * the old limit and do not decrease it again. The limit never exceeds the live ES client pool size,
+ * so admitted requests do not queue for connections. Batch requests may only use a share
+ * of the limit, so the remaining headroom is kept for interactive searches.
+ */
+@Component
+@Slf4j
+public class AdmissionControlServiceImpl implements AdmissionControlService {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdMillis;
+    private final double backoffRatio;
+    private final double batchShare;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Written under "this", read without locking on the acquire path
+    private volatile double limit;
+
+    // Guarded by "this"
+    private boolean decreased;
+    private long lastDecreaseNanos;
+
+    @Autowired
+    public AdmissionControlServiceImpl(
+            @Value("${com.griddynamics.es.graduation.project.admission.initialLimit:20}") int initialLimit,
+            @Value("${com.griddynamics.es.graduation.project.admission.minLimit:2}") int minLimit,
+            @Value("${com.griddynamics.es.graduation.project.admission.maxLimit:50}") int maxLimit,
+            @Value("${com.griddynamics.es.graduation.project.maxConnections:50}") int maxConnections,
+            @Value("${com.griddynamics.es.graduation.project.admission.latencyThresholdMillis:300}") long latencyThresholdMillis,
+            @Value("${com.griddynamics.es.graduation.project.admission.backoffRatio:0.9}") double backoffRatio,
+            @Value("${com.griddynamics.es.graduation.project.admission.batchShare:0.5}") double batchShare) {
+        this(initialLimit, minLimit, maxLimit, maxConnections, latencyThresholdMillis, backoffRatio, batchShare,
+                System::nanoTime);
+    }
+
+    AdmissionControlServiceImpl(int initialLimit, int minLimit, int maxLimit, int maxConnections,
+                                long latencyThresholdMillis, double backoffRatio, double batchShare,
+                                LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = Math.min(maxLimit, maxConnections);
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.backoffRatio = backoffRatio;
+        this.batchShare = batchShare;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    @Override
+    public boolean tryAcquire(RequestPriority priority) {
+        int laneLimit = laneLimit(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= laneLimit) {
+                log.debug("Rejecting {} request, in flight: {}, lane limit: {}", priority, current, laneLimit);
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public synchronized void recordLatency(long esLatencyMillis, boolean failed) {
+        long now = nanoClock.getAsLong();
+        if (failed || esLatencyMillis > latencyThresholdMillis) {
+            long startNanos = now - TimeUnit.MILLISECONDS.toNanos(esLatencyMillis);
+            if (decreased && startNanos - lastDecreaseNanos < 0) {
+                return;
+            }
+            limit = Math.max(minLimit, limit * backoffRatio);
+            decreased = true;
+            lastDecreaseNanos = now;
+            log.debug("Decreased search concurrency limit to {}", limit);
+        } else if (inFlight.get() * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private int laneLimit(RequestPriority priority) {
+        int total = (int) limit;
+        if (priority == RequestPriority.BATCH) {
+            return Math.max(1, (int) (total * batchShare));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,17 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.RequestPriority;
+
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final RequestPriority priority;
+
+    public AdmissionRejectedException(RequestPriority priority) {
+        super("Request rejected by admission control, priority: " + priority);
+        this.priority = priority;
+    }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+}
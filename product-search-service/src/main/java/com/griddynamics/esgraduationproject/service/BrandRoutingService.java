@@ -0,0 +1,8 @@
+package com.griddynamics.esgraduationproject.service;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BrandRoutingService {
+    Optional<String> resolveRouting(List<String> tokens);
+}
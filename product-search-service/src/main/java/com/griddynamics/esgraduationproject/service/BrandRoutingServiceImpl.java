@@ -0,0 +1,191 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.analyze.AnalyzeRequest;
+import org.elasticsearch.action.admin.indices.analyze.AnalyzeResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the routing value for searches that clearly name exactly one brand.
+ * By default the query has to consist of the brand name plus optional size and color tokens;
+ * with routing.exactBrandMatch disabled other words are allowed too, as long as none of them
+ * belongs to another brand name. A routed search is also filtered by that brand, so it only returns
+ * that brand's products and its facets only count them, unlike the same query without routing.
+ * Brand names are read from the index and analyzed with the same analyzer as the query
+ * by a scheduled background task, searches only read the cached result.
+ * Routing is used only while every index behind the alias requires routing in its mapping,
+ * which the indexer sets when it routes products by brand.
+ */
+@Component
+@Slf4j
+public class BrandRoutingServiceImpl implements BrandRoutingService {
+
+    private final RestHighLevelClient esClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${com.griddynamics.es.graduation.project.routing.byBrand:false}")
+    private boolean routeByBrand;
+    @Value("${com.griddynamics.es.graduation.project.routing.maxBrands:1000}")
+    private int maxBrands;
+    @Value("${com.griddynamics.es.graduation.project.routing.exactBrandMatch:true}")
+    private boolean exactBrandMatch;
+
+    // brand.keyword value -> tokens of the analyzed brand name, empty while routing can not be used
+    private volatile Map<String, List<String>> brandTokens = Collections.emptyMap();
+    private volatile boolean routingRequired;
+
+    public BrandRoutingServiceImpl(@Qualifier("backgroundEsClient") RestHighLevelClient esClient) {
+        this.esClient = esClient;
+    }
+
+    @Override
+    public Optional<String> resolveRouting(List<String> tokens) {
+        return resolve(brandTokens, tokens, exactBrandMatch);
+    }
+
+    static Optional<String> resolve(Map<String, List<String>> brands, List<String> tokens, boolean exactBrandMatch) {
+        if (brands.isEmpty() || tokens.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<String> matchedBrands = brands.entrySet().stream()
+                .filter(brand -> Collections.indexOfSubList(tokens, brand.getValue()) >= 0)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        // Route only when the query is unambiguous, e.g. not when both "Calvin" and "Calvin Klein" match
+        if (matchedBrands.size() != 1) {
+            return Optional.empty();
+        }
+        String brand = matchedBrands.get(0);
+
+        // Size and color tokens only narrow down the skus, so they may accompany the brand name
+        List<String> matchedTokens = brands.get(brand);
+        int brandStart = Collections.indexOfSubList(tokens, matchedTokens);
+        List<String> otherTokens = new ArrayList<>(tokens.subList(0, brandStart));
+        otherTokens.addAll(tokens.subList(brandStart + matchedTokens.size(), tokens.size()));
+        otherTokens.removeIf(token -> ProductSearchServiceImpl.SIZES.contains(token)
+                || ProductSearchServiceImpl.COLORS.contains(token));
+
+        if (exactBrandMatch) {
+            return otherTokens.isEmpty() ? Optional.of(brand) : Optional.empty();
+        }
+        // A word of another brand name, e.g. "tommy" in "levi's tommy jeans", may mean the query
+        // is about that brand too
+        boolean mentionsOtherBrand = brands.values().stream()
+                .filter(other -> other != matchedTokens)
+                .flatMap(List::stream)
+                .anyMatch(otherTokens::contains);
+        return mentionsOtherBrand ? Optional.empty() : Optional.of(brand);
+    }
+
+    @Scheduled(fixedDelayString = "${com.griddynamics.es.graduation.project.routing.brandRefreshIntervalMillis:300000}")
+    public void refreshBrands() {
+        if (!routeByBrand) {
+            return;
+        }
+
+        try {
+            boolean required = isRoutingRequired();
+            if (required != routingRequired) {
+                log.info("Routing required by {} mapping: {}.", ProductSearchServiceImpl.INDEX_ALIAS, required);
+                routingRequired = required;
+            }
+            if (!required) {
+                brandTokens = Collections.emptyMap();
+                return;
+            }
+
+            brandTokens = loadBrandTokens();
+            log.debug("Loaded {} brand(s) for search routing.", brandTokens.size());
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Can not refresh brands for search routing, keeping {} cached brand(s).", brandTokens.size(), ex);
+        }
+    }
+
+    private boolean isRoutingRequired() throws IOException {
+        Response response = esClient.getLowLevelClient()
+                .performRequest(new Request("GET", "/" + ProductSearchServiceImpl.INDEX_ALIAS + "/_mapping"));
+        JsonNode indices;
+        try (InputStream is = response.getEntity().getContent()) {
+            indices = objectMapper.readTree(is);
+        }
+
+        if (indices.size() == 0) {
+            return false;
+        }
+        for (Iterator<JsonNode> it = indices.elements(); it.hasNext(); ) {
+            if (!it.next().path("mappings").path("_routing").path("required").asBoolean(false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, List<String>> loadBrandTokens() throws IOException {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .size(0)
+                .aggregation(AggregationBuilders.terms("brand")
+                        .field("brand.keyword")
+                        .size(maxBrands));
+        SearchResponse response = esClient.search(
+                new SearchRequest(ProductSearchServiceImpl.INDEX_ALIAS).source(sourceBuilder), RequestOptions.DEFAULT);
+
+        Map<String, List<String>> result = new HashMap<>();
+        Terms brands = response.getAggregations().get("brand");
+        for (Terms.Bucket bucket : brands.getBuckets()) {
+            String brand = bucket.getKeyAsString();
+            // A comma would split the value into several routing keys at search time
+            if (brand.contains(",")) {
+                continue;
+            }
+            List<String> tokens = analyze(brand);
+            // Size and color tokens are matched against skus, not brand, so they can not scope a search
+            boolean hasSkuToken = tokens.stream()
+                    .anyMatch(token -> ProductSearchServiceImpl.SIZES.contains(token)
+                            || ProductSearchServiceImpl.COLORS.contains(token));
+            if (!tokens.isEmpty() && !hasSkuToken) {
+                result.put(brand, tokens);
+            }
+        }
+        return result;
+    }
+
+    private List<String> analyze(String text) throws IOException {
+        AnalyzeRequest analyzeRequest = new AnalyzeRequest()
+                .index(ProductSearchServiceImpl.INDEX_ALIAS)
+                .analyzer("text_analyzer")
+                .text(text);
+
+        AnalyzeResponse analyzeResponse = esClient.indices().analyze(analyzeRequest, RequestOptions.DEFAULT);
+        return analyzeResponse.getTokens().stream()
+                .map(AnalyzeResponse.AnalyzeToken::getTerm)
+                .collect(Collectors.toList());
+    }
+}
@@ -54,8 +54,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ProductSearchServiceImpl implements ProductSearchService {
 
-    private static final String INDEX_ALIAS = "product_index";
+    static final String INDEX_ALIAS = "product_index";
+    // Query tokens matched against skus instead of brand and name
+    static final List<String> SIZES = Arrays.asList("xxs", "xs", "s", "m", "l", "xl", "xxl", "xxxl");
+    static final List<String> COLORS = Arrays.asList("green", "black", "white", "blue", "yellow",
+            "red", "brown", "orange", "grey");
     private final RestHighLevelClient esClient;
+    private final ShadowTrafficService shadowTrafficService;
+    private final SlowQueryLogService slowQueryLogService;
+    private final BrandRoutingService brandRoutingService;
+    private final AdmissionControlService admissionControlService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -64,8 +72,16 @@ public class ProductSearchServiceImpl implements ProductSearchService {
     @Value("${com.griddynamics.es.graduation.project.files.settings:classpath:elastic/typeaheads/settings.json}")
     private Resource productSettingsFile;
 
-    public ProductSearchServiceImpl(RestHighLevelClient esClient) {
+    public ProductSearchServiceImpl(RestHighLevelClient esClient,
+                                    ShadowTrafficService shadowTrafficService,
+                                    SlowQueryLogService slowQueryLogService,
+                                    BrandRoutingService brandRoutingService,
+                                    AdmissionControlService admissionControlService) {
         this.esClient = esClient;
+        this.shadowTrafficService = shadowTrafficService;
+        this.slowQueryLogService = slowQueryLogService;
+        this.brandRoutingService = brandRoutingService;
+        this.admissionControlService = admissionControlService;
     }
 
     @Override
@@ -74,28 +90,61 @@ public class ProductSearchServiceImpl implements ProductSearchService {
             return new ProductSearchResponse(0, Collections.emptyList(), Collections.emptyMap());
         }
 
-        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-
-        BoolQueryBuilder boolQuery = buildQuery(request.getTextQuery());
-        sourceBuilder.query(boolQuery);
+        long requestStart = System.nanoTime();
 
-        sourceBuilder.sort("_score", SortOrder.DESC);
-        sourceBuilder.sort("id", SortOrder.DESC);
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        List<String> tokens = null;
+        String routing = null;
+        SearchResponse response = null;
+        Exception error = null;
+        try {
+            tokens = analyze(request.getTextQuery());
+            BoolQueryBuilder boolQuery = buildQuery(tokens);
+
+            // Brand-scoped searches only need the shard holding that brand. The brand filter keeps
+            // the results independent of which other brands happen to share the shard, so routed
+            // searches return only that brand's products and their facets only count that brand.
+            routing = brandRoutingService.resolveRouting(tokens).orElse(null);
+            if (routing != null) {
+                boolQuery.filter(QueryBuilders.termQuery("brand.keyword", routing));
+            }
+            sourceBuilder.query(boolQuery);
 
-        sourceBuilder.from(request.getPage() * request.getSize());
-        sourceBuilder.size(request.getSize());
+            sourceBuilder.sort("_score", SortOrder.DESC);
+            sourceBuilder.sort("id", SortOrder.DESC);
 
-        addAggregations(sourceBuilder);
+            sourceBuilder.from(request.getPage() * request.getSize());
+            sourceBuilder.size(request.getSize());
 
-        org.elasticsearch.action.search.SearchRequest searchRequest =
-                new org.elasticsearch.action.search.SearchRequest(INDEX_ALIAS)
-                        .source(sourceBuilder);
+            addAggregations(sourceBuilder);
 
-        SearchResponse response =
-                esClient.search(searchRequest, RequestOptions.DEFAULT);
+            org.elasticsearch.action.search.SearchRequest searchRequest =
+                    new org.elasticsearch.action.search.SearchRequest(INDEX_ALIAS)
+                            .source(sourceBuilder)
+                            .routing(routing);
 
-        return mapResponse(response);
+            long start = System.nanoTime();
+            long latencyMillis;
+            try {
+                response = esClient.search(searchRequest, RequestOptions.DEFAULT);
+            } finally {
+                // The admission limit adapts to the ES search latency only
+                latencyMillis = (System.nanoTime() - start) / 1_000_000;
+                admissionControlService.recordLatency(latencyMillis, response == null);
+            }
 
+            shadowTrafficService.mirror(sourceBuilder, response, latencyMillis);
+
+            return mapResponse(response);
+        } catch (IOException | RuntimeException ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            // Also record failed and timed out searches, they are usually the slowest ones
+            long requestLatencyMillis = (System.nanoTime() - requestStart) / 1_000_000;
+            slowQueryLogService.record(request.getTextQuery(), tokens, sourceBuilder, routing, response,
+                    requestLatencyMillis, error);
+        }
     }
 
     private void addAggregations(SearchSourceBuilder sourceBuilder) {
@@ -169,19 +218,20 @@ public class ProductSearchServiceImpl implements ProductSearchService {
         return new ProductSearchResponse(totalHits, products, facets);
     }
 
-    private BoolQueryBuilder buildQuery(String queryText) throws IOException {
-        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
-
-        // Analyze the query text
+    private List<String> analyze(String queryText) throws IOException {
         AnalyzeRequest analyzeRequest = new AnalyzeRequest()
                 .index(INDEX_ALIAS)
                 .analyzer("text_analyzer")
                 .text(queryText);
 
         AnalyzeResponse analyzeResponse = esClient.indices().analyze(analyzeRequest, RequestOptions.DEFAULT);
-        List<String> tokens = analyzeResponse.getTokens().stream()
+        return analyzeResponse.getTokens().stream()
                 .map(AnalyzeResponse.AnalyzeToken::getTerm)
                 .collect(Collectors.toList());
+    }
+
+    private BoolQueryBuilder buildQuery(List<String> tokens) {
+        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
 
         if (tokens.isEmpty()) {
             return boolQuery;
@@ -192,14 +242,13 @@ public class ProductSearchServiceImpl implements ProductSearchService {
             BoolQueryBuilder tokenQuery = QueryBuilders.boolQuery();
 
             // Check if token is a size
-            if (Arrays.asList("xxs", "xs", "s", "m", "l", "xl", "xxl", "xxxl").contains(token.toLowerCase())) {
+            if (SIZES.contains(token.toLowerCase())) {
                 tokenQuery.should(QueryBuilders.nestedQuery("skus",
                                 QueryBuilders.termQuery("skus.size", token), ScoreMode.Total))
                         .boost(2f);
             }
             // Check if token is a color
-            else if (Arrays.asList("green", "black", "white", "blue", "yellow",
-                    "red", "brown", "orange", "grey").contains(token.toLowerCase())) {
+            else if (COLORS.contains(token.toLowerCase())) {
                 tokenQuery.should(QueryBuilders.nestedQuery("skus",
                                 QueryBuilders.termQuery("skus.color", token), ScoreMode.Total))
                         .boost(3f);
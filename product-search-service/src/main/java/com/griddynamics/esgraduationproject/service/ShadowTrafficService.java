@@ -0,0 +1,15 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.ShadowTrafficReport;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+public interface ShadowTrafficService {
+    void mirror(SearchSourceBuilder source, SearchResponse liveResponse, long liveLatencyMillis);
+
+    ShadowTrafficReport getReport();
+
+    void setCandidateIndex(String candidateIndex);
+
+    void reset();
+}
@@ -0,0 +1,245 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.LatencyPercentiles;
+import com.griddynamics.esgraduationproject.model.ShadowComparison;
+import com.griddynamics.esgraduationproject.model.ShadowTrafficReport;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * Mirrors a sample of live searches to a candidate index and keeps side-by-side statistics,
+ * so a new index generation can be checked before the alias is switched to it.
+ * Shadow requests are sent asynchronously through the background ES client, so they neither
+ * delay the live response nor take connections from the live client's pool.
+ * Percentiles are computed over the most recent comparisons (the percentile window).
+ * Candidate requests are never routed: the candidate may not route documents by brand,
+ * and the brand filter in the mirrored query already keeps brand-scoped hits comparable.
+ */
+@Component
+@Slf4j
+public class ShadowTrafficServiceImpl implements ShadowTrafficService {
+
+    private final RestHighLevelClient esClient;
+
+    @Value("${com.griddynamics.es.graduation.project.shadow.enabled:false}")
+    private boolean enabled;
+    @Value("${com.griddynamics.es.graduation.project.shadow.sampleRate:0.1}")
+    private double sampleRate;
+    @Value("${com.griddynamics.es.graduation.project.shadow.topN:10}")
+    private int topN;
+    @Value("${com.griddynamics.es.graduation.project.shadow.maxInFlight:4}")
+    private int maxInFlight;
+    @Value("${com.griddynamics.es.graduation.project.shadow.recentComparisons:50}")
+    private int recentComparisonsSize;
+    @Value("${com.griddynamics.es.graduation.project.shadow.percentileWindow:1000}")
+    private int percentileWindowSize;
+
+    private volatile String candidateIndex;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Guarded by "this"
+    private final Deque<ShadowComparison> recentComparisons = new ArrayDeque<>();
+    private long comparedRequests;
+    private long failedRequests;
+    private long skippedRequests;
+    private long liveLatencySum;
+    private long candidateLatencySum;
+    private long maxLiveLatency;
+    private long maxCandidateLatency;
+    private long liveTookSum;
+    private long candidateTookSum;
+    private long hitCountMismatches;
+    private double topNOverlapSum;
+
+    public ShadowTrafficServiceImpl(@Qualifier("backgroundEsClient") RestHighLevelClient esClient,
+                                    @Value("${com.griddynamics.es.graduation.project.shadow.candidateIndex:}") String candidateIndex) {
+        this.esClient = esClient;
+        this.candidateIndex = candidateIndex;
+    }
+
+    @Override
+    public void mirror(SearchSourceBuilder source, SearchResponse liveResponse, long liveLatencyMillis) {
+        String index = candidateIndex;
+        if (!enabled || isBlank(index) || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        // Do not let a slow candidate pile up requests on the background ES client
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            synchronized (this) {
+                skippedRequests++;
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        esClient.searchAsync(new SearchRequest(index).source(source), RequestOptions.DEFAULT,
+                new ActionListener<SearchResponse>() {
+                    @Override
+                    public void onResponse(SearchResponse candidateResponse) {
+                        inFlight.decrementAndGet();
+                        long candidateLatencyMillis = (System.nanoTime() - start) / 1_000_000;
+                        if (index.equals(candidateIndex)) {
+                            record(compare(liveResponse, liveLatencyMillis, candidateResponse, candidateLatencyMillis));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception ex) {
+                        inFlight.decrementAndGet();
+                        log.warn("Shadow request to index {} failed.", index, ex);
+                        synchronized (ShadowTrafficServiceImpl.this) {
+                            failedRequests++;
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public synchronized ShadowTrafficReport getReport() {
+        return new ShadowTrafficReport(
+                ProductSearchServiceImpl.INDEX_ALIAS,
+                candidateIndex,
+                comparedRequests,
+                failedRequests,
+                skippedRequests,
+                average(liveLatencySum, comparedRequests),
+                average(candidateLatencySum, comparedRequests),
+                maxLiveLatency,
+                maxCandidateLatency,
+                percentiles(ShadowComparison::getLiveLatencyMillis),
+                percentiles(ShadowComparison::getCandidateLatencyMillis),
+                average(liveTookSum, comparedRequests),
+                average(candidateTookSum, comparedRequests),
+                percentiles(ShadowComparison::getLiveTookMillis),
+                percentiles(ShadowComparison::getCandidateTookMillis),
+                hitCountMismatches,
+                comparedRequests == 0 ? 0 : topNOverlapSum / comparedRequests,
+                Math.min(recentComparisons.size(), percentileWindowSize),
+                recentComparisons.stream().limit(recentComparisonsSize).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void setCandidateIndex(String candidateIndex) {
+        this.candidateIndex = candidateIndex;
+        reset();
+        log.info("Shadow traffic candidate index set to {}.", candidateIndex);
+    }
+
+    @Override
+    public synchronized void reset() {
+        recentComparisons.clear();
+        comparedRequests = 0;
+        failedRequests = 0;
+        skippedRequests = 0;
+        liveLatencySum = 0;
+        candidateLatencySum = 0;
+        maxLiveLatency = 0;
+        maxCandidateLatency = 0;
+        liveTookSum = 0;
+        candidateTookSum = 0;
+        hitCountMismatches = 0;
+        topNOverlapSum = 0;
+    }
+
+    private ShadowComparison compare(SearchResponse live, long liveLatencyMillis,
+                                     SearchResponse candidate, long candidateLatencyMillis) {
+        return new ShadowComparison(
+                System.currentTimeMillis(),
+                liveLatencyMillis,
+                candidateLatencyMillis,
+                live.getTook().getMillis(),
+                candidate.getTook().getMillis(),
+                live.getHits().getTotalHits().value,
+                candidate.getHits().getTotalHits().value,
+                topNOverlap(live, candidate));
+    }
+
+    /**
+     * Share of the live top-N document ids that the candidate also returns in its top N.
+     */
+    private double topNOverlap(SearchResponse live, SearchResponse candidate) {
+        return topNOverlap(ids(live), ids(candidate), topN);
+    }
+
+    static double topNOverlap(List<String> liveIds, List<String> candidateIds, int topN) {
+        Set<String> liveTopIds = liveIds.stream().limit(topN).collect(Collectors.toSet());
+        Set<String> candidateTopIds = candidateIds.stream().limit(topN).collect(Collectors.toSet());
+        if (liveTopIds.isEmpty()) {
+            return candidateTopIds.isEmpty() ? 1.0 : 0.0;
+        }
+        long common = liveTopIds.stream().filter(candidateTopIds::contains).count();
+        return (double) common / liveTopIds.size();
+    }
+
+    private static List<String> ids(SearchResponse response) {
+        return Arrays.stream(response.getHits().getHits())
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+
+    private synchronized void record(ShadowComparison comparison) {
+        comparedRequests++;
+        liveLatencySum += comparison.getLiveLatencyMillis();
+        candidateLatencySum += comparison.getCandidateLatencyMillis();
+        maxLiveLatency = Math.max(maxLiveLatency, comparison.getLiveLatencyMillis());
+        maxCandidateLatency = Math.max(maxCandidateLatency, comparison.getCandidateLatencyMillis());
+        liveTookSum += comparison.getLiveTookMillis();
+        candidateTookSum += comparison.getCandidateTookMillis();
+        if (comparison.getLiveTotalHits() != comparison.getCandidateTotalHits()) {
+            hitCountMismatches++;
+        }
+        topNOverlapSum += comparison.getTopNOverlap();
+
+        recentComparisons.addFirst(comparison);
+        while (recentComparisons.size() > Math.max(percentileWindowSize, recentComparisonsSize)) {
+            recentComparisons.removeLast();
+        }
+    }
+
+    // Nearest-rank percentiles over the newest percentileWindow comparisons, must hold "this"
+    private LatencyPercentiles percentiles(ToLongFunction<ShadowComparison> metric) {
+        long[] values = recentComparisons.stream()
+                .limit(percentileWindowSize)
+                .mapToLong(metric)
+                .sorted()
+                .toArray();
+        return new LatencyPercentiles(percentile(values, 50), percentile(values, 95), percentile(values, 99));
+    }
+
+    static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    private static double average(long sum, long count) {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,18 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.SlowQueryLogEntry;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.List;
+
+public interface SlowQueryLogService {
+    void record(String textQuery, List<String> tokens, SearchSourceBuilder source, String routing,
+                SearchResponse response, long latencyMillis, Exception error);
+
+    List<SlowQueryLogEntry> getSlowEntries();
+
+    List<SlowQueryLogEntry> getSampledEntries();
+
+    void clear();
+}
@@ -0,0 +1,219 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.QueryProfileBreakdown;
+import com.griddynamics.esgraduationproject.model.SlowQueryLogEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the most recent slow or failed searches and the most recent sampled searches
+ * in two separate bounded in-memory buffers, so frequent samples never push out slow entries.
+ * Sampled searches are re-run asynchronously with profiling enabled, so the per-clause
+ * timing of the generated bool query can be inspected without profiling every request.
+ * Profiling requests go through the background ES client and do not use the live connection pool.
+ */
+@Component
+@Slf4j
+public class SlowQueryLogServiceImpl implements SlowQueryLogService {
+
+    private final RestHighLevelClient esClient;
+
+    private final long thresholdMillis;
+    private final double profileSampleRate;
+    private final int capacity;
+    private final int sampledCapacity;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Guarded by "this"
+    private final Deque<SlowQueryLogEntry> slowEntries = new ArrayDeque<>();
+    private final Deque<SlowQueryLogEntry> sampledEntries = new ArrayDeque<>();
+
+    public SlowQueryLogServiceImpl(
+            @Qualifier("backgroundEsClient") RestHighLevelClient esClient,
+            @Value("${com.griddynamics.es.graduation.project.slowlog.thresholdMillis:200}") long thresholdMillis,
+            @Value("${com.griddynamics.es.graduation.project.slowlog.profileSampleRate:0.01}") double profileSampleRate,
+            @Value("${com.griddynamics.es.graduation.project.slowlog.capacity:100}") int capacity,
+            @Value("${com.griddynamics.es.graduation.project.slowlog.sampledCapacity:100}") int sampledCapacity,
+            @Value("${com.griddynamics.es.graduation.project.slowlog.maxInFlight:2}") int maxInFlight) {
+        this.esClient = esClient;
+        this.thresholdMillis = thresholdMillis;
+        this.profileSampleRate = profileSampleRate;
+        this.capacity = capacity;
+        this.sampledCapacity = sampledCapacity;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void record(String textQuery, List<String> tokens, SearchSourceBuilder source, String routing,
+                       SearchResponse response, long latencyMillis, Exception error) {
+        boolean slow = latencyMillis > thresholdMillis;
+        boolean failed = error != null;
+        // Failed searches are not re-run, profiling them would most likely fail again
+        boolean sampled = !failed && ThreadLocalRandom.current().nextDouble() < profileSampleRate;
+        if (!slow && !failed && !sampled) {
+            return;
+        }
+
+        SlowQueryLogEntry entry = new SlowQueryLogEntry(
+                System.currentTimeMillis(),
+                textQuery,
+                tokens,
+                source.query() == null ? null : source.query().toString(),
+                latencyMillis,
+                response == null ? null : response.getTook().getMillis(),
+                slow,
+                routing,
+                servingIndex(response),
+                failed ? error.toString() : null,
+                null);
+        if (failed) {
+            log.warn("Failed query ({} ms, error: {}): textQuery='{}', tokens={}",
+                    latencyMillis, entry.getError(), textQuery, tokens);
+            add(slowEntries, entry, capacity);
+        } else if (slow) {
+            log.warn("Slow query ({} ms, took {} ms): textQuery='{}', tokens={}",
+                    latencyMillis, entry.getTookMillis(), textQuery, tokens);
+            add(slowEntries, entry, capacity);
+        } else {
+            add(sampledEntries, entry, sampledCapacity);
+        }
+
+        if (sampled) {
+            profile(entry, source, routing);
+        }
+    }
+
+    @Override
+    public synchronized List<SlowQueryLogEntry> getSlowEntries() {
+        return copy(slowEntries);
+    }
+
+    @Override
+    public synchronized List<SlowQueryLogEntry> getSampledEntries() {
+        return copy(sampledEntries);
+    }
+
+    @Override
+    public synchronized void clear() {
+        slowEntries.clear();
+        sampledEntries.clear();
+    }
+
+    private void profile(SlowQueryLogEntry entry, SearchSourceBuilder source, String routing) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return;
+        }
+
+        // Profile the index that served the search, the alias may have moved since
+        String index = entry.getIndex() != null ? entry.getIndex() : ProductSearchServiceImpl.INDEX_ALIAS;
+        SearchRequest profileRequest = new SearchRequest(index)
+                .source(profiledCopy(source))
+                .routing(routing);
+        esClient.searchAsync(profileRequest, RequestOptions.DEFAULT, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                inFlight.decrementAndGet();
+                List<QueryProfileBreakdown> breakdown = flatten(response.getProfileResults());
+                synchronized (SlowQueryLogServiceImpl.this) {
+                    entry.setProfile(breakdown);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception ex) {
+                inFlight.decrementAndGet();
+                log.warn("Profiling query '{}' failed.", entry.getTextQuery(), ex);
+            }
+        });
+    }
+
+    private static String servingIndex(SearchResponse response) {
+        if (response == null || response.getHits().getHits().length == 0) {
+            return null;
+        }
+        return response.getHits().getHits()[0].getIndex();
+    }
+
+    // Entries are handed out as copies, the profile is attached later under the lock
+    private static List<SlowQueryLogEntry> copy(Deque<SlowQueryLogEntry> entries) {
+        return entries.stream()
+                .map(entry -> new SlowQueryLogEntry(
+                        entry.getTimestamp(),
+                        entry.getTextQuery(),
+                        entry.getTokens(),
+                        entry.getQuery(),
+                        entry.getLatencyMillis(),
+                        entry.getTookMillis(),
+                        entry.isSlow(),
+                        entry.getRouting(),
+                        entry.getIndex(),
+                        entry.getError(),
+                        entry.getProfile()))
+                .collect(Collectors.toList());
+    }
+
+    private static SearchSourceBuilder profiledCopy(SearchSourceBuilder source) {
+        SearchSourceBuilder copy = new SearchSourceBuilder()
+                .query(source.query())
+                .from(source.from())
+                .size(source.size())
+                .profile(true);
+        if (source.sorts() != null) {
+            source.sorts().forEach(copy::sort);
+        }
+        if (source.aggregations() != null) {
+            source.aggregations().getAggregatorFactories().forEach(copy::aggregation);
+        }
+        return copy;
+    }
+
+    private static List<QueryProfileBreakdown> flatten(Map<String, ProfileShardResult> profileResults) {
+        List<QueryProfileBreakdown> breakdown = new ArrayList<>();
+        profileResults.forEach((shard, shardResult) -> {
+            for (QueryProfileShardResult queryResult : shardResult.getQueryProfileResults()) {
+                for (ProfileResult result : queryResult.getQueryResults()) {
+                    flatten(shard, result, 0, breakdown);
+                }
+            }
+        });
+        return breakdown;
+    }
+
+    private static void flatten(String shard, ProfileResult result, int depth, List<QueryProfileBreakdown> breakdown) {
+        breakdown.add(new QueryProfileBreakdown(shard, depth, result.getQueryName(),
+                result.getLuceneDescription(), result.getTime()));
+        for (ProfileResult child : result.getProfiledChildren()) {
+            flatten(shard, child, depth + 1, breakdown);
+        }
+    }
+
+    private synchronized void add(Deque<SlowQueryLogEntry> entries, SlowQueryLogEntry entry, int capacity) {
+        entries.addFirst(entry);
+        while (entries.size() > capacity) {
+            entries.removeLast();
+        }
+    }
+}
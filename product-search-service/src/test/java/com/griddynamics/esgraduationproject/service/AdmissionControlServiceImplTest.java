@@ -0,0 +1,152 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.RequestPriority;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlServiceImplTest {
+
+    private static final long THRESHOLD_MILLIS = 100;
+
+    private final AtomicLong clockNanos = new AtomicLong(TimeUnit.SECONDS.toNanos(10));
+
+    private AdmissionControlServiceImpl limiter(int initialLimit, int minLimit, int maxLimit, int maxConnections) {
+        return new AdmissionControlServiceImpl(initialLimit, minLimit, maxLimit, maxConnections,
+                THRESHOLD_MILLIS, 0.5, 0.5, clockNanos::get);
+    }
+
+    private void advanceClock(long millis) {
+        clockNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    // Acquires permits until rejected and releases them again, returns the number of admitted requests
+    private int capacity(AdmissionControlServiceImpl limiter, RequestPriority priority) {
+        int admitted = 0;
+        while (limiter.tryAcquire(priority)) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limiter.release();
+        }
+        return admitted;
+    }
+
+    @Test
+    public void testInitialLimit() {
+        AdmissionControlServiceImpl limiter = limiter(4, 1, 10, 10);
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testGrowsByAboutOnePerWindowWhenFastAndLimitInUse() {
+        AdmissionControlServiceImpl limiter = limiter(4, 1, 10, 10);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        }
+        // Each fast call adds 1/limit: 4 -> 4.25 -> 4.49 -> 4.71 -> 4.92
+        for (int i = 0; i < 4; i++) {
+            limiter.recordLatency(10, false);
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release();
+        }
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        }
+        limiter.recordLatency(10, false);
+        for (int i = 0; i < 4; i++) {
+            limiter.release();
+        }
+        assertEquals(5, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testDoesNotGrowWhenLimitUnused() {
+        AdmissionControlServiceImpl limiter = limiter(4, 1, 10, 10);
+        assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        limiter.recordLatency(10, false);
+        limiter.release();
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testGrowthCappedByPoolSize() {
+        AdmissionControlServiceImpl limiter = limiter(4, 1, 100, 6);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.recordLatency(10, false);
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release();
+        }
+        assertEquals(6, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testBacksOffOnSlowOrFailedCalls() {
+        AdmissionControlServiceImpl limiter = limiter(8, 1, 10, 10);
+        limiter.recordLatency(THRESHOLD_MILLIS + 1, false);
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+        advanceClock(1000);
+        limiter.recordLatency(10, true);
+        assertEquals(2, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testBurstOfSlowCallsDecreasesOnce() {
+        AdmissionControlServiceImpl limiter = limiter(8, 1, 10, 10);
+        for (int i = 0; i < 50; i++) {
+            limiter.recordLatency(500, false);
+        }
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+
+        // Still started before the decrease, so it belongs to the same window
+        advanceClock(200);
+        limiter.recordLatency(500, true);
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+
+        // Started after the decrease, so it reflects the new limit
+        advanceClock(1000);
+        limiter.recordLatency(500, false);
+        assertEquals(2, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testBackoffStopsAtMinLimit() {
+        AdmissionControlServiceImpl limiter = limiter(8, 3, 10, 10);
+        for (int i = 0; i < 10; i++) {
+            advanceClock(1000);
+            limiter.recordLatency(10, true);
+        }
+        assertEquals(3, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testBatchLaneUsesShareOfLimit() {
+        AdmissionControlServiceImpl limiter = limiter(8, 1, 10, 10);
+        assertEquals(4, capacity(limiter, RequestPriority.BATCH));
+
+        // Batch requests in flight leave the rest of the limit to interactive ones
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.BATCH));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.BATCH));
+        assertEquals(4, capacity(limiter, RequestPriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testBatchLaneKeepsOneSlot() {
+        AdmissionControlServiceImpl limiter = limiter(1, 1, 10, 10);
+        assertEquals(1, capacity(limiter, RequestPriority.BATCH));
+    }
+}
@@ -0,0 +1,75 @@
+package com.griddynamics.esgraduationproject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BrandRoutingServiceImplTest {
+
+    private static final Map<String, List<String>> BRANDS = new HashMap<>();
+
+    static {
+        BRANDS.put("Calvin Klein", Arrays.asList("calvin", "klein"));
+        BRANDS.put("Calvin", Collections.singletonList("calvin"));
+        BRANDS.put("Levi's", Collections.singletonList("levi's"));
+        BRANDS.put("Tommy Hilfiger", Arrays.asList("tommy", "hilfiger"));
+    }
+
+    private static Optional<String> resolve(boolean exactBrandMatch, String... tokens) {
+        return BrandRoutingServiceImpl.resolve(BRANDS, Arrays.asList(tokens), exactBrandMatch);
+    }
+
+    @Test
+    public void testNoBrandsOrTokens() {
+        assertEquals(Optional.empty(), BrandRoutingServiceImpl.resolve(Collections.emptyMap(),
+                Collections.singletonList("levi's"), true));
+        assertEquals(Optional.empty(), resolve(true));
+    }
+
+    @Test
+    public void testBrandOnlyQuery() {
+        assertEquals(Optional.of("Levi's"), resolve(true, "levi's"));
+        assertEquals(Optional.of("Tommy Hilfiger"), resolve(true, "tommy", "hilfiger"));
+    }
+
+    @Test
+    public void testSizeAndColorTokensAllowed() {
+        assertEquals(Optional.of("Levi's"), resolve(true, "red", "levi's", "xl"));
+    }
+
+    @Test
+    public void testAmbiguousBrandsNotRouted() {
+        // Both "Calvin" and "Calvin Klein" match
+        assertEquals(Optional.empty(), resolve(true, "calvin", "klein"));
+        assertEquals(Optional.empty(), resolve(false, "calvin", "klein", "jeans"));
+    }
+
+    @Test
+    public void testSeveralBrandsNotRouted() {
+        assertEquals(Optional.empty(), resolve(false, "levi's", "tommy", "hilfiger"));
+    }
+
+    @Test
+    public void testPartialBrandNameNotRouted() {
+        assertEquals(Optional.empty(), resolve(false, "tommy", "jeans"));
+    }
+
+    @Test
+    public void testOtherWordsOnlyRoutedWithoutExactMatch() {
+        assertEquals(Optional.empty(), resolve(true, "levi's", "jeans"));
+        assertEquals(Optional.of("Levi's"), resolve(false, "levi's", "jeans"));
+    }
+
+    @Test
+    public void testWordOfOtherBrandNotRouted() {
+        // "tommy" alone does not match "Tommy Hilfiger", but may still refer to it
+        assertEquals(Optional.empty(), resolve(false, "levi's", "tommy", "jeans"));
+    }
+}
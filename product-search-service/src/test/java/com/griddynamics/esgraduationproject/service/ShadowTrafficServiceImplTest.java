@@ -0,0 +1,77 @@
+package com.griddynamics.esgraduationproject.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ShadowTrafficServiceImplTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testTopNOverlapIdentical() {
+        List<String> ids = Arrays.asList("1", "2", "3");
+        assertEquals(1.0, ShadowTrafficServiceImpl.topNOverlap(ids, ids, 10), DELTA);
+    }
+
+    @Test
+    public void testTopNOverlapIgnoresOrderWithinTopN() {
+        assertEquals(1.0, ShadowTrafficServiceImpl.topNOverlap(
+                Arrays.asList("1", "2", "3"), Arrays.asList("3", "1", "2"), 3), DELTA);
+    }
+
+    @Test
+    public void testTopNOverlapPartial() {
+        assertEquals(0.5, ShadowTrafficServiceImpl.topNOverlap(
+                Arrays.asList("1", "2", "3", "4"), Arrays.asList("1", "3", "5", "6"), 4), DELTA);
+    }
+
+    @Test
+    public void testTopNOverlapOnlyComparesTopN() {
+        // "3" is in both lists, but outside the candidate top 2
+        assertEquals(0.5, ShadowTrafficServiceImpl.topNOverlap(
+                Arrays.asList("1", "3"), Arrays.asList("1", "2", "3"), 2), DELTA);
+    }
+
+    @Test
+    public void testTopNOverlapEmptyResults() {
+        List<String> empty = Collections.emptyList();
+        assertEquals(1.0, ShadowTrafficServiceImpl.topNOverlap(empty, empty, 10), DELTA);
+        assertEquals(0.0, ShadowTrafficServiceImpl.topNOverlap(empty, Arrays.asList("1"), 10), DELTA);
+        assertEquals(0.0, ShadowTrafficServiceImpl.topNOverlap(Arrays.asList("1"), empty, 10), DELTA);
+    }
+
+    @Test
+    public void testPercentileEmpty() {
+        assertEquals(0, ShadowTrafficServiceImpl.percentile(new long[0], 50));
+    }
+
+    @Test
+    public void testPercentileSingleValue() {
+        long[] values = {7};
+        assertEquals(7, ShadowTrafficServiceImpl.percentile(values, 50));
+        assertEquals(7, ShadowTrafficServiceImpl.percentile(values, 99));
+    }
+
+    @Test
+    public void testPercentileNearestRank() {
+        long[] values = new long[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        assertEquals(50, ShadowTrafficServiceImpl.percentile(values, 50));
+        assertEquals(95, ShadowTrafficServiceImpl.percentile(values, 95));
+        assertEquals(99, ShadowTrafficServiceImpl.percentile(values, 99));
+    }
+
+    @Test
+    public void testPercentileTailOutlier() {
+        long[] values = {10, 10, 10, 10, 10, 10, 10, 10, 10, 500};
+        assertEquals(10, ShadowTrafficServiceImpl.percentile(values, 50));
+        assertEquals(500, ShadowTrafficServiceImpl.percentile(values, 95));
+    }
+}
@@ -0,0 +1,111 @@
+package com.griddynamics.esgraduationproject.service;
+
+import com.griddynamics.esgraduationproject.model.SlowQueryLogEntry;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowQueryLogServiceImplTest {
+
+    private static final long THRESHOLD_MILLIS = 100;
+
+    private final SearchSourceBuilder source = new SearchSourceBuilder().query(QueryBuilders.matchAllQuery());
+
+    // maxInFlight 0 keeps profiling re-runs away from the (absent) ES client
+    private SlowQueryLogServiceImpl slowLog(double profileSampleRate, int capacity) {
+        return new SlowQueryLogServiceImpl(null, THRESHOLD_MILLIS, profileSampleRate, capacity, capacity, 0);
+    }
+
+    private void record(SlowQueryLogServiceImpl slowLog, String textQuery, long latencyMillis, Exception error) {
+        slowLog.record(textQuery, Collections.singletonList(textQuery), source, null, null, latencyMillis, error);
+    }
+
+    @Test
+    public void testFastQueryNotRecorded() {
+        SlowQueryLogServiceImpl slowLog = slowLog(0, 10);
+        record(slowLog, "jeans", THRESHOLD_MILLIS, null);
+        assertTrue(slowLog.getSlowEntries().isEmpty());
+        assertTrue(slowLog.getSampledEntries().isEmpty());
+    }
+
+    @Test
+    public void testSlowQueryGoesToSlowBuffer() {
+        SlowQueryLogServiceImpl slowLog = slowLog(0, 10);
+        record(slowLog, "jeans", THRESHOLD_MILLIS + 1, null);
+
+        List<SlowQueryLogEntry> entries = slowLog.getSlowEntries();
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).isSlow());
+        assertEquals("jeans", entries.get(0).getTextQuery());
+        assertNotNull(entries.get(0).getQuery());
+        assertNull(entries.get(0).getError());
+        assertTrue(slowLog.getSampledEntries().isEmpty());
+    }
+
+    @Test
+    public void testFailedQueryGoesToSlowBuffer() {
+        SlowQueryLogServiceImpl slowLog = slowLog(1, 10);
+        record(slowLog, "jeans", 1, new IOException("timeout"));
+
+        List<SlowQueryLogEntry> entries = slowLog.getSlowEntries();
+        assertEquals(1, entries.size());
+        assertFalse(entries.get(0).isSlow());
+        assertTrue(entries.get(0).getError().contains("timeout"));
+        assertNull(entries.get(0).getTookMillis());
+        // Failed queries are never sampled for profiling
+        assertTrue(slowLog.getSampledEntries().isEmpty());
+    }
+
+    @Test
+    public void testSampledFastQueryGoesToSampledBuffer() {
+        SlowQueryLogServiceImpl slowLog = slowLog(1, 10);
+        record(slowLog, "jeans", 1, null);
+
+        assertTrue(slowLog.getSlowEntries().isEmpty());
+        assertEquals(1, slowLog.getSampledEntries().size());
+    }
+
+    @Test
+    public void testSamplesDoNotEvictSlowEntries() {
+        SlowQueryLogServiceImpl slowLog = slowLog(1, 3);
+        record(slowLog, "slow", THRESHOLD_MILLIS + 1, null);
+        for (int i = 0; i < 10; i++) {
+            record(slowLog, "fast " + i, 1, null);
+        }
+
+        assertEquals(1, slowLog.getSlowEntries().size());
+        assertEquals("slow", slowLog.getSlowEntries().get(0).getTextQuery());
+        List<SlowQueryLogEntry> sampled = slowLog.getSampledEntries();
+        assertEquals(3, sampled.size());
+        assertEquals("fast 9", sampled.get(0).getTextQuery());
+    }
+
+    @Test
+    public void testReturnedEntriesAreCopies() {
+        SlowQueryLogServiceImpl slowLog = slowLog(0, 10);
+        record(slowLog, "jeans", THRESHOLD_MILLIS + 1, null);
+
+        slowLog.getSlowEntries().get(0).setTextQuery("changed");
+        assertEquals("jeans", slowLog.getSlowEntries().get(0).getTextQuery());
+    }
+
+    @Test
+    public void testClear() {
+        SlowQueryLogServiceImpl slowLog = slowLog(1, 10);
+        record(slowLog, "slow", THRESHOLD_MILLIS + 1, null);
+        record(slowLog, "fast", 1, null);
+        slowLog.clear();
+        assertTrue(slowLog.getSlowEntries().isEmpty());
+        assertTrue(slowLog.getSampledEntries().isEmpty());
+    }
+}